@@ -0,0 +1,38 @@
+#!/bin/sh
+# Compiles the calculator and creates an application class-data-sharing (AppCDS) archive
+# by running MainClient in REPL mode over a set of representative expressions.
+# Requires JDK 13 or newer.
+#
+# Usage: scripts/build-cds.sh [output directory]
+# Then:  java -XX:SharedArchiveFile=<output>/roman-calculator.jsa -cp <output>/roman-calculator.jar romanCalculator.MainClient "V + I"
+
+set -e
+
+cd "$(dirname "$0")/.."
+OUT="${1:-build}"
+
+rm -rf "$OUT/classes"
+mkdir -p "$OUT/classes"
+javac -d "$OUT/classes" src/*.java src/exception/*.java
+# CDS archives only support classes loaded from jar files.
+jar cf "$OUT/roman-calculator.jar" -C "$OUT/classes" .
+
+java -XX:ArchiveClassesAtExit="$OUT/roman-calculator.jsa" -cp "$OUT/roman-calculator.jar" romanCalculator.MainClient --repl > /dev/null <<'EXPRESSIONS'
+V + I
+X - V
+X * V
+L / X
+X ^ II
+(-VII)
+-(VII)
+I + - V
+(I + II) * III - (IV / II)
+((I + II * III - IV) * V + VI * (VII + VIII) + IX - X + XI + XII / III) * II
+I + ( II + III + ( IV + V + ( VI + VII + ( VIII + IX))))
+MMXV - MCMXCIX
+(V + I * ( X + I )
+MXII3
+XXXX
+EXPRESSIONS
+
+echo "Created $OUT/roman-calculator.jsa"
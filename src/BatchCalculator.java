@@ -0,0 +1,379 @@
+package romanCalculator;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import romanCalculator.exception.BadExpressionException;
+
+/**
+ * This class calculates a batch of expressions, calculating every distinct parenthesized
+ * subexpression only once for the whole batch.
+ *
+ * Every expression is converted to its Arabic form and split into subexpressions (one for the
+ * expression itself and one for every pair of parenthesis). The subexpressions are interned in a
+ * concurrent table, using their text with the inner parenthesis replaced by the ids of the
+ * inner subexpressions as a key, so identical subexpressions share the same node.
+ *
+ * The nodes are then calculated level by level (a node's level being higher than the levels of
+ * its inner nodes) and the nodes of a level are calculated in parallel. The results of the expressions
+ * are converted to Roman format during the same parallel calculation, once for every distinct expression.
+ *
+ * Every node is calculated exactly like the RomanCalculator calculates a parenthesis, so the results
+ * (and the exceptions) are the same as the ones returned by RomanCalculator.calculate(String).
+ *
+ * @author Vlad-Cosmin Sandu
+ *
+ */
+public class BatchCalculator {
+
+	/**
+	 * The number of expressions or nodes given to a thread at once.
+	 */
+	private static final int CHUNK_SIZE = 256;
+
+	/**
+	 * Rough sizes (in bytes) of the objects kept by the intern table, used to estimate its memory.
+	 */
+	private static final int OBJECT_OVERHEAD = 16;
+	private static final int REFERENCE_SIZE = 8;
+	private static final int STRING_OVERHEAD = 40;
+	private static final int TABLE_ENTRY_OVERHEAD = 32;
+
+	/**
+	 * A distinct subexpression of the batch.
+	 * The text of the subexpression is formed by the segments with the results of the children
+	 * placed between them.
+	 */
+	static class Node {
+		final int id;
+		final String[] segments;
+		final Node[] children;
+		final int level;
+
+		/**
+		 * The message of the parenthesis error found after the children, or null if the subexpression is valid.
+		 */
+		final String parenthesisError;
+
+		int value;
+		Exception failure;
+
+		/**
+		 * True if the node is a whole expression of the batch. The value of such a node is also
+		 * converted to Roman format when the node is calculated.
+		 */
+		boolean root;
+		String romanValue;
+
+		Node(int id, String[] segments, Node[] children, String parenthesisError) {
+			this.id = id;
+			this.segments = segments;
+			this.children = children;
+			this.parenthesisError = parenthesisError;
+
+			int maxChildLevel = -1;
+			for(Node child : children)
+				maxChildLevel = Math.max(maxChildLevel, child.level);
+			this.level = maxChildLevel + 1;
+		}
+
+		/**
+		 * Calculates the node, storing the result or the exception thrown.
+		 * The children must be already calculated.
+		 */
+		void calculate() {
+			StringBuilder expression = new StringBuilder(segments[0]);
+
+			for(int i = 0; i < children.length; i++){
+				if(children[i].failure != null){
+					failure = children[i].failure;
+					return;
+				}
+				expression.append(children[i].value);
+				expression.append(segments[i+1]);
+			}
+
+			if(parenthesisError != null){
+				failure = new BadExpressionException(parenthesisError);
+				return;
+			}
+
+			try {
+				value = RomanCalculator.calculateParenthesisFreeExpression(expression);
+			} catch (RuntimeException e) {
+				failure = e;
+				return;
+			}
+
+			if(root)
+				romanValue = RomanCalculator.arabicToRoman(value);
+		}
+
+		/**
+		 * Returns an estimation of the memory used by this node, in bytes.
+		 */
+		long estimateMemory() {
+			long memory = OBJECT_OVERHEAD + 6 * REFERENCE_SIZE + 2 * OBJECT_OVERHEAD
+					+ (segments.length + children.length) * REFERENCE_SIZE;
+
+			for(String segment : segments)
+				memory += STRING_OVERHEAD + segment.length();
+
+			return memory;
+		}
+	}
+
+	private final ConcurrentHashMap<String, Node> internTable = new ConcurrentHashMap<String, Node>();
+	private final AtomicInteger nextId = new AtomicInteger();
+	private final AtomicLong subexpressionCount = new AtomicLong();
+
+	private BatchCalculator() {
+	}
+
+	/**
+	 * Calculates the specified expressions, using one thread for every available processor.
+	 *
+	 * @param expressions the expressions to be calculated
+	 * @return the results of the expressions and the statistics of the batch
+	 * @see RomanCalculator#calculate(String)
+	 */
+
+	public static BatchResult calculate(List<String> expressions) {
+		return calculate(expressions, Runtime.getRuntime().availableProcessors());
+	}
+
+	/**
+	 * Calculates the specified expressions using the specified number of threads.
+	 *
+	 * @param expressions the expressions to be calculated
+	 * @param threadCount the number of threads used to parse and calculate the expressions
+	 * @return the results of the expressions and the statistics of the batch
+	 * @see RomanCalculator#calculate(String)
+	 */
+
+	public static BatchResult calculate(List<String> expressions, int threadCount) {
+		BatchCalculator calculator = new BatchCalculator();
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, threadCount));
+
+		try {
+			return calculator.calculate(expressions, executor);
+		} finally {
+			executor.shutdownNow();
+		}
+	}
+
+	/**
+	 * Parses the expressions into the intern table, calculates the nodes and collects the results.
+	 *
+	 * @param expressions the expressions to be calculated
+	 * @param executor the executor used to run the tasks in parallel
+	 * @return the results of the expressions and the statistics of the batch
+	 */
+
+	private BatchResult calculate(final List<String> expressions, ExecutorService executor) {
+		final Node[] roots = new Node[expressions.size()];
+		final BadExpressionException[] conversionFailures = new BadExpressionException[expressions.size()];
+
+		List<Callable<Void>> parseTasks = new ArrayList<Callable<Void>>();
+		for(int chunkStart = 0; chunkStart < expressions.size(); chunkStart += CHUNK_SIZE){
+			final int start = chunkStart;
+			final int end = Math.min(chunkStart + CHUNK_SIZE, expressions.size());
+
+			parseTasks.add(new Callable<Void>() {
+				@Override
+				public Void call() {
+					for(int i = start; i < end; i++){
+						String expression = expressions.get(i);
+						if(expression == null || expression.isEmpty())
+							continue;
+
+						try {
+							String arabicExpression = RomanCalculator.convertExpressionToArabic(expression);
+							roots[i] = parse(arabicExpression);
+							roots[i].root = true;
+						} catch (BadExpressionException e) {
+							conversionFailures[i] = e;
+						}
+					}
+					return null;
+				}
+			});
+		}
+		runAll(executor, parseTasks);
+
+		List<List<Node>> levels = new ArrayList<List<Node>>();
+		long internTableMemory = 0;
+
+		for(Map.Entry<String, Node> entry : internTable.entrySet()){
+			Node node = entry.getValue();
+
+			while(levels.size() <= node.level)
+				levels.add(new ArrayList<Node>());
+			levels.get(node.level).add(node);
+
+			internTableMemory += TABLE_ENTRY_OVERHEAD + STRING_OVERHEAD + entry.getKey().length() + node.estimateMemory();
+		}
+
+		for(List<Node> level : levels){
+			List<Callable<Void>> calculateTasks = new ArrayList<Callable<Void>>();
+
+			for(int chunkStart = 0; chunkStart < level.size(); chunkStart += CHUNK_SIZE){
+				final List<Node> chunk = level.subList(chunkStart, Math.min(chunkStart + CHUNK_SIZE, level.size()));
+
+				calculateTasks.add(new Callable<Void>() {
+					@Override
+					public Void call() {
+						for(Node node : chunk)
+							node.calculate();
+						return null;
+					}
+				});
+			}
+			runAll(executor, calculateTasks);
+		}
+
+		return new BatchResult(roots, conversionFailures, subexpressionCount.get(), internTable.size(), internTableMemory);
+	}
+
+	/**
+	 * The parts of a node found so far while parsing its subexpression.
+	 */
+	private static class PendingNode {
+		final List<String> segments = new ArrayList<String>();
+		final List<Node> children = new ArrayList<Node>();
+		final StringBuilder segment = new StringBuilder();
+
+		void addChild(Node child) {
+			children.add(child);
+			segments.add(segment.toString());
+			segment.setLength(0);
+		}
+	}
+
+	/**
+	 * Splits the Arabic expression into nodes, interning the node of the expression and all its inner subexpressions.
+	 *
+	 * The parenthesis are matched in the same way as in RomanCalculator.calculateExpressionWithoutParenthesis(String):
+	 * a parenthesis error can only be found outside of all the parenthesis, and it stops the search, so the node fails
+	 * with the same exception as the RomanCalculator. The part before the error is then split using an explicit stack
+	 * instead of recursion, so a deeply nested expression can't overflow the stack of the thread.
+	 *
+	 * @param expression the expression in Arabic form
+	 * @return the interned node of the expression
+	 */
+
+	private Node parse(String expression) {
+		int end = expression.length();
+		String parenthesisError = null;
+		int countDown = 0;
+		int firstParenthesisPos = 0;
+
+		for(int i = 0; i < expression.length(); i++){
+			if(expression.charAt(i) == '('){
+				if(countDown == 0)
+					firstParenthesisPos = i;
+				countDown++;
+			}
+			else if(expression.charAt(i) == ')'){
+				countDown--;
+
+				if(countDown < 0){
+					end = i;
+					parenthesisError = "Parenthesis number doesn't match.";
+					break;
+				}
+			}
+		}
+
+		if(countDown > 0){
+			end = firstParenthesisPos;
+			parenthesisError = "Parenthesis number doesn't match.";
+		}
+
+		Deque<PendingNode> outerNodes = new ArrayDeque<PendingNode>();
+		PendingNode current = new PendingNode();
+
+		for(int i = 0; i < end; i++){
+			if(expression.charAt(i) == '('){
+				outerNodes.push(current);
+				current = new PendingNode();
+			}
+			else if(expression.charAt(i) == ')'){
+				Node child = intern(current, null);
+				current = outerNodes.pop();
+				current.addChild(child);
+			}
+			else
+				current.segment.append(expression.charAt(i));
+		}
+
+		return intern(current, parenthesisError);
+	}
+
+	/**
+	 * Returns the interned node having the specified parts, creating it if needed.
+	 *
+	 * @param pendingNode the parts of the node
+	 * @param parenthesisError the message of the parenthesis error found after the children, or null
+	 * @return the interned node
+	 */
+
+	private Node intern(PendingNode pendingNode, String parenthesisError) {
+		List<String> segments = pendingNode.segments;
+		List<Node> children = pendingNode.children;
+		segments.add(pendingNode.segment.toString());
+
+		StringBuilder key = new StringBuilder(segments.get(0));
+		for(int i = 0; i < children.size(); i++){
+			key.append('{').append(children.get(i).id).append('}');
+			key.append(segments.get(i+1));
+		}
+		if(parenthesisError != null)
+			key.append('!');
+
+		subexpressionCount.incrementAndGet();
+
+		String internKey = key.toString();
+		Node node = internTable.get(internKey);
+
+		if(node == null){
+			Node newNode = new Node(nextId.getAndIncrement(), segments.toArray(new String[segments.size()]),
+					children.toArray(new Node[children.size()]), parenthesisError);
+			node = internTable.putIfAbsent(internKey, newNode);
+			if(node == null)
+				node = newNode;
+		}
+
+		return node;
+	}
+
+	/**
+	 * Runs the specified tasks on the executor and waits for all of them to finish.
+	 *
+	 * @param executor the executor used to run the tasks
+	 * @param tasks the tasks to run
+	 */
+
+	private static void runAll(ExecutorService executor, List<Callable<Void>> tasks) {
+		try {
+			for(Future<Void> future : executor.invokeAll(tasks))
+				future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new IllegalStateException("The batch calculation was interrupted.", e);
+		} catch (ExecutionException e) {
+			throw new IllegalStateException("The batch calculation failed.", e.getCause());
+		}
+	}
+}
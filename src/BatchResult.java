@@ -0,0 +1,110 @@
+package romanCalculator;
+
+import romanCalculator.exception.BadExpressionException;
+
+/**
+ * This class contains the results of a batch calculated by the BatchCalculator and the
+ * statistics of the subexpression deduplication.
+ *
+ * @author Vlad-Cosmin Sandu
+ *
+ */
+public class BatchResult {
+
+	private final BatchCalculator.Node[] roots;
+	private final BadExpressionException[] conversionFailures;
+	private final long subexpressionCount;
+	private final int uniqueSubexpressionCount;
+	private final long internTableMemory;
+
+	BatchResult(BatchCalculator.Node[] roots, BadExpressionException[] conversionFailures,
+			long subexpressionCount, int uniqueSubexpressionCount, long internTableMemory) {
+		this.roots = roots;
+		this.conversionFailures = conversionFailures;
+		this.subexpressionCount = subexpressionCount;
+		this.uniqueSubexpressionCount = uniqueSubexpressionCount;
+		this.internTableMemory = internTableMemory;
+	}
+
+	/**
+	 * Returns the result of the expression found at the specified position in the batch, in Roman format.
+	 * The result (or the exception thrown) is the same as the one of RomanCalculator.calculate(String).
+	 * Identical expressions share the same result String.
+	 *
+	 * @param index the position of the expression in the batch
+	 * @return the result of the expression in a Roman number format
+	 * @throws BadExpressionException if the expression contains invalid elements
+	 * @see RomanCalculator#calculate(String)
+	 */
+
+	public String getResult(int index) throws BadExpressionException {
+		if(conversionFailures[index] != null)
+			throw conversionFailures[index];
+
+		BatchCalculator.Node root = roots[index];
+
+		if(root == null)
+			return null;
+
+		if(root.failure instanceof BadExpressionException)
+			throw (BadExpressionException) root.failure;
+		if(root.failure != null)
+			throw (RuntimeException) root.failure;
+
+		return root.romanValue;
+	}
+
+	/**
+	 * Returns the number of expressions in the batch.
+	 *
+	 * @return the number of expressions
+	 */
+
+	public int getExpressionCount() {
+		return roots.length;
+	}
+
+	/**
+	 * Returns the number of subexpressions found in the batch, counting the expressions themselves
+	 * and every pair of parenthesis, including the duplicates.
+	 *
+	 * @return the number of subexpressions
+	 */
+
+	public long getSubexpressionCount() {
+		return subexpressionCount;
+	}
+
+	/**
+	 * Returns the number of distinct subexpressions, which is the number of subexpressions that were calculated.
+	 *
+	 * @return the number of distinct subexpressions
+	 */
+
+	public int getUniqueSubexpressionCount() {
+		return uniqueSubexpressionCount;
+	}
+
+	/**
+	 * Returns the number of subexpressions divided by the number of distinct subexpressions.
+	 *
+	 * @return the deduplication ratio, or 1 if the batch contains no subexpressions
+	 */
+
+	public double getDeduplicationRatio() {
+		if(uniqueSubexpressionCount == 0)
+			return 1;
+
+		return (double) subexpressionCount / uniqueSubexpressionCount;
+	}
+
+	/**
+	 * Returns an estimation of the memory used by the intern table (its entries, keys and nodes), in bytes.
+	 *
+	 * @return the estimated memory of the intern table
+	 */
+
+	public long getInternTableMemory() {
+		return internTableMemory;
+	}
+}
@@ -0,0 +1,450 @@
+package romanCalculator;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import romanCalculator.exception.BadExpressionException;
+
+/**
+ * This class caches the results of the expressions calculated by the RomanCalculator and
+ * persists them to a snapshot file, so that a restarted calculator doesn't have to parse
+ * the already known expressions again.
+ *
+ * The cache keeps at most a given number of expressions, evicting the least recently used ones.
+ *
+ * The snapshot is loaded lazily, on a background thread started by the first calculation. The calculations
+ * don't wait for the snapshot to be loaded: until it is, the expressions it contains are parsed again.
+ * The loaded entries never replace or evict the expressions calculated since the cache was created.
+ * The file is memory-mapped, so the checksum is verified and the entries are decoded into the cache
+ * directly from the mapping, without reading the file into an intermediate buffer.
+ * A snapshot that is missing, truncated or corrupted is ignored and the cache starts empty.
+ * A snapshot written by a different RomanCalculator.ENGINE_VERSION is ignored too, so the results
+ * of an older calculator are never returned after an update.
+ * Only successful calculations are cached, invalid expressions are always parsed again
+ * so that they throw the same exceptions as the RomanCalculator.
+ *
+ * Snapshot format (big-endian):
+ * magic (int), version (int), RomanCalculator.ENGINE_VERSION (int),
+ * for every entry (from the least to the most recently used), the expression and the result
+ * as length-prefixed UTF-8 Strings,
+ * number of entries (int), CRC32 of all the previous bytes (long).
+ *
+ * @author Vlad-Cosmin Sandu
+ *
+ */
+public class ExpressionCache {
+
+	/**
+	 * Values used to identify a valid snapshot file.
+	 */
+	private static final int MAGIC = 0x52434353;
+	private static final int VERSION = 3;
+	private static final int HEADER_SIZE = 12;
+	private static final int TRAILER_SIZE = 12;
+
+	/**
+	 * The maximum number of cached expressions used when none is specified.
+	 */
+	public static final int DEFAULT_MAX_ENTRIES = 100000;
+
+	private final File snapshotFile;
+	private final int maxEntries;
+	private final LinkedHashMap<String, String> results;
+	private final AtomicBoolean loadStarted = new AtomicBoolean(false);
+	private final CountDownLatch loadFinished = new CountDownLatch(1);
+	private Timer snapshotTimer;
+
+	/**
+	 * The number of changes made to the cache, and the value it had when the last snapshot was
+	 * written (or loaded). Both are guarded by the results map.
+	 */
+	private long modificationCount = 0;
+	private long snapshotModificationCount = -1;
+
+	/**
+	 * Creates a cache backed by the specified snapshot file, keeping at most DEFAULT_MAX_ENTRIES expressions.
+	 * The file is not read until the cache is first used.
+	 *
+	 * @param snapshotFile the file used to store the snapshots
+	 */
+
+	public ExpressionCache(File snapshotFile) {
+		this(snapshotFile, DEFAULT_MAX_ENTRIES);
+	}
+
+	/**
+	 * Creates a cache backed by the specified snapshot file. The file is not read until
+	 * the cache is first used.
+	 *
+	 * @param snapshotFile the file used to store the snapshots
+	 * @param maxEntries the maximum number of cached expressions
+	 */
+
+	public ExpressionCache(File snapshotFile, final int maxEntries) {
+		if(maxEntries < 1)
+			throw new IllegalArgumentException("The cache must keep at least one expression.");
+
+		this.snapshotFile = snapshotFile;
+		this.maxEntries = maxEntries;
+		this.results = new LinkedHashMap<String, String>(16, 0.75f, true) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+				return size() > maxEntries;
+			}
+		};
+	}
+
+	/**
+	 * Calculates the specified expression and returns the result in Roman format.
+	 * If the expression was already calculated (by this cache or by the one that wrote the snapshot),
+	 * the cached result is returned without parsing the expression.
+	 * The first call starts loading the snapshot, but doesn't wait for it.
+	 *
+	 * @param expression the expression to be calculated
+	 * @return the result of the expression in a Roman number format
+	 * @throws BadExpressionException if the expression contains invalid elements
+	 * @see RomanCalculator#calculate(String)
+	 */
+
+	public String calculate(String expression) throws BadExpressionException {
+		if(expression == null || expression.isEmpty())
+			return null;
+
+		startLoading();
+
+		String result;
+		synchronized(results){
+			result = results.get(expression);
+		}
+
+		if(result == null){
+			result = RomanCalculator.calculate(expression);
+
+			synchronized(results){
+				results.put(expression, result);
+				modificationCount++;
+			}
+		}
+
+		return result;
+	}
+
+	/**
+	 * Returns the number of cached expressions, waiting for the snapshot to be loaded.
+	 *
+	 * @return the number of cached expressions
+	 */
+
+	public int size() {
+		awaitLoaded();
+
+		synchronized(results){
+			return results.size();
+		}
+	}
+
+	/**
+	 * Writes all the cached expressions to the snapshot file, unless the cache didn't change since
+	 * the last snapshot. The snapshot is streamed to a temporary file which then atomically replaces
+	 * the old snapshot, so a reader never sees a partially written file.
+	 * The method waits for the previous snapshot to be loaded, so its entries are not lost.
+	 *
+	 * @return true if the snapshot was written, false if the cache didn't change
+	 * @throws IOException if the snapshot can't be written
+	 */
+
+	public synchronized boolean snapshot() throws IOException {
+		awaitLoaded();
+
+		String[] expressions;
+		String[] values;
+		long modification;
+
+		synchronized(results){
+			if(modificationCount == snapshotModificationCount)
+				return false;
+
+			modification = modificationCount;
+			expressions = results.keySet().toArray(new String[results.size()]);
+			values = results.values().toArray(new String[results.size()]);
+		}
+
+		File tempFile = new File(snapshotFile.getPath() + ".tmp");
+
+		try(FileOutputStream fileOutput = new FileOutputStream(tempFile)){
+			BufferedOutputStream bufferedOutput = new BufferedOutputStream(fileOutput);
+			CheckedOutputStream checkedOutput = new CheckedOutputStream(bufferedOutput, new CRC32());
+			DataOutputStream output = new DataOutputStream(checkedOutput);
+
+			output.writeInt(MAGIC);
+			output.writeInt(VERSION);
+			output.writeInt(RomanCalculator.ENGINE_VERSION);
+
+			for(int i = 0; i < expressions.length; i++){
+				writeString(output, expressions[i]);
+				writeString(output, values[i]);
+			}
+
+			output.writeInt(expressions.length);
+			output.flush();
+
+			DataOutputStream checksumOutput = new DataOutputStream(bufferedOutput);
+			checksumOutput.writeLong(checkedOutput.getChecksum().getValue());
+			checksumOutput.flush();
+			fileOutput.getFD().sync();
+		}
+
+		Files.move(tempFile.toPath(), snapshotFile.toPath(),
+				StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+
+		synchronized(results){
+			snapshotModificationCount = modification;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Starts writing a snapshot periodically, on a background thread.
+	 * Any previously started snapshots are stopped.
+	 *
+	 * @param periodMillis the time between two snapshots, in milliseconds
+	 */
+
+	public synchronized void startSnapshots(long periodMillis) {
+		stopSnapshots();
+
+		snapshotTimer = new Timer("ExpressionCache snapshot", true);
+		snapshotTimer.schedule(new TimerTask() {
+			@Override
+			public void run() {
+				try {
+					snapshot();
+				} catch (IOException e) {
+					System.err.println("Could not write the snapshot " + snapshotFile + ": " + e);
+				}
+			}
+		}, periodMillis, periodMillis);
+	}
+
+	/**
+	 * Stops the periodic snapshots started by startSnapshots(long).
+	 */
+
+	public synchronized void stopSnapshots() {
+		if(snapshotTimer != null){
+			snapshotTimer.cancel();
+			snapshotTimer = null;
+		}
+	}
+
+	/**
+	 * Starts loading the snapshot file on a background thread, the first time it is called.
+	 * The modification count is read before returning, so the calculation that started the loading
+	 * is not considered part of the snapshot.
+	 */
+
+	private void startLoading() {
+		if(!loadStarted.compareAndSet(false, true))
+			return;
+
+		final long loadStartModification;
+		synchronized(results){
+			loadStartModification = modificationCount;
+		}
+
+		Thread loader = new Thread(new Runnable() {
+			@Override
+			public void run() {
+				try {
+					loadSnapshot(loadStartModification);
+				} finally {
+					loadFinished.countDown();
+				}
+			}
+		}, "ExpressionCache loader");
+		loader.setDaemon(true);
+		loader.start();
+	}
+
+	/**
+	 * Starts loading the snapshot file if needed and waits until it is loaded.
+	 */
+
+	private void awaitLoaded() {
+		startLoading();
+
+		boolean interrupted = false;
+		while(loadFinished.getCount() > 0){
+			try {
+				loadFinished.await();
+			} catch (InterruptedException e) {
+				interrupted = true;
+			}
+		}
+
+		if(interrupted)
+			Thread.currentThread().interrupt();
+	}
+
+	/**
+	 * Maps the snapshot file and adds its entries to the cache.
+	 * If the file is invalid, the entries it added are cleared (together with the ones calculated
+	 * during the loading, which is only possible if the file has a valid checksum but a wrong structure).
+	 *
+	 * @param loadStartModification the modification count of the cache when the loading started
+	 */
+
+	private void loadSnapshot(long loadStartModification) {
+		if(!snapshotFile.isFile())
+			return;
+
+		boolean valid;
+
+		try(RandomAccessFile file = new RandomAccessFile(snapshotFile, "r");
+				FileChannel channel = file.getChannel()){
+
+			valid = readSnapshot(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+		} catch (IOException | BufferUnderflowException e) {
+			valid = false;
+		}
+
+		synchronized(results){
+			if(valid)
+				snapshotModificationCount = loadStartModification;
+			else
+				results.clear();
+		}
+	}
+
+	/**
+	 * Verifies the snapshot contained in the specified buffer and decodes its entries into the cache.
+	 * An entry is only added if its expression is not cached yet and the cache is not full, so the loaded
+	 * entries never replace nor evict the ones calculated meanwhile. The least recently used entries
+	 * that wouldn't fit in the cache anyway are skipped.
+	 *
+	 * @param buffer the buffer containing the snapshot file
+	 * @return true if the snapshot is valid, false if it is invalid (some entries may have been added)
+	 */
+
+	private boolean readSnapshot(ByteBuffer buffer) {
+		if(buffer.remaining() < HEADER_SIZE + TRAILER_SIZE)
+			return false;
+
+		int checkedLength = buffer.limit() - 8;
+		long expectedChecksum = buffer.getLong(checkedLength);
+		int entryCount = buffer.getInt(checkedLength - 4);
+
+		ByteBuffer checkedBytes = buffer.duplicate();
+		checkedBytes.limit(checkedLength);
+		CRC32 checksum = new CRC32();
+		checksum.update(checkedBytes);
+
+		if(checksum.getValue() != expectedChecksum)
+			return false;
+
+		if(buffer.getInt() != MAGIC || buffer.getInt() != VERSION || buffer.getInt() != RomanCalculator.ENGINE_VERSION)
+			return false;
+
+		ByteBuffer entries = buffer.slice();
+		entries.limit(checkedLength - 4 - HEADER_SIZE);
+
+		for(int i = 0; i < entryCount; i++){
+			if(i < entryCount - maxEntries){
+				if(!skipString(entries) || !skipString(entries))
+					return false;
+				continue;
+			}
+
+			String expression = readString(entries);
+			String result = readString(entries);
+
+			if(expression == null || result == null)
+				return false;
+
+			synchronized(results){
+				if(results.size() < maxEntries && !results.containsKey(expression))
+					results.put(expression, result);
+			}
+		}
+
+		return !entries.hasRemaining();
+	}
+
+	/**
+	 * Writes the specified String as its length followed by its UTF-8 bytes.
+	 *
+	 * @param output the stream to write to
+	 * @param value the String to write
+	 * @throws IOException if the String can't be written
+	 */
+
+	private static void writeString(DataOutputStream output, String value) throws IOException {
+		byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+		output.writeInt(bytes.length);
+		output.write(bytes);
+	}
+
+	/**
+	 * Skips a String written by writeString(DataOutputStream, String).
+	 *
+	 * @param buffer the buffer to read from
+	 * @return false if the length is invalid
+	 */
+
+	private static boolean skipString(ByteBuffer buffer) {
+		if(buffer.remaining() < 4)
+			return false;
+
+		int length = buffer.getInt();
+
+		if(length < 0 || length > buffer.remaining())
+			return false;
+
+		buffer.position(buffer.position() + length);
+
+		return true;
+	}
+
+	/**
+	 * Reads a String written by writeString(DataOutputStream, String).
+	 *
+	 * @param buffer the buffer to read from
+	 * @return the String, or null if the length is invalid
+	 */
+
+	private static String readString(ByteBuffer buffer) {
+		if(buffer.remaining() < 4)
+			return null;
+
+		int length = buffer.getInt();
+
+		if(length < 0 || length > buffer.remaining())
+			return null;
+
+		byte[] bytes = new byte[length];
+		buffer.get(bytes);
+
+		return new String(bytes, StandardCharsets.UTF_8);
+	}
+}
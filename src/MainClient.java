@@ -1,20 +1,43 @@
 package romanCalculator;
 
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+
 import romanCalculator.exception.BadExpressionException;
 
 /**
  * This class shows an example of how the RomanCalculator is used to calculate an expression.
- * 
+ *
+ * Without arguments, it calculates an example expression. The arguments, if given, are joined
+ * into a single expression which is calculated instead.
+ * With the --repl argument, it reads expressions from the standard input (one per line) and writes
+ * their results to the standard output, so many expressions can be calculated by a single process.
+ *
  * @author Vlad-Cosmin Sandu
  *
  */
 public class MainClient {
 
+	private static final String REPL_ARGUMENT = "--repl";
+
 	public static void main(String[] args) {
 
 		//RomanCalculator.setDebugMode(true);
+		if(args.length == 1 && REPL_ARGUMENT.equals(args[0])){
+			try {
+				runRepl(new BufferedReader(new InputStreamReader(System.in)));
+			} catch (IOException e) {
+				System.err.println("Could not read the standard input: " + e);
+			}
+			return;
+		}
+
 		String expression = "((I + II * III - IV) * V + VI * (VII + VIII) + IX - X + XI + XII / III) * II";
-		
+
+		if(args.length > 0)
+			expression = String.join(" ", args);
+
 		try {
 			System.out.println(RomanCalculator.calculate(expression));
 		} catch (BadExpressionException e) {
@@ -23,4 +46,31 @@ public class MainClient {
 		}
 	}
 
+	/**
+	 * Calculates every line read from the specified reader and prints the result.
+	 * Blank lines are skipped. An expression that can't be calculated prints an error line
+	 * with the cause (e.g. an ArithmeticException for a division by zero) instead of a result,
+	 * and the next lines are still calculated.
+	 *
+	 * @param reader the reader containing one expression per line
+	 * @throws IOException if the reader can't be read
+	 */
+
+	private static void runRepl(BufferedReader reader) throws IOException {
+		String line;
+
+		while((line = reader.readLine()) != null){
+			if(line.trim().isEmpty())
+				continue;
+
+			try {
+				System.out.println(RomanCalculator.calculate(line));
+			} catch (BadExpressionException e) {
+				System.out.println("Error: " + e.getMessage());
+			} catch (RuntimeException e) {
+				System.out.println("Error: " + e);
+			}
+		}
+	}
+
 }
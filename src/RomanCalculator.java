@@ -10,6 +10,13 @@ import romanCalculator.exception.BadExpressionException;
  */
 public class RomanCalculator {
 
+	/**
+	 * The version of the calculation rules. It must be increased by every change that modifies the
+	 * result (or the exception) of any expression, so that the results saved by an older version
+	 * (e.g. by the ExpressionCache) are not reused.
+	 */
+	public static final int ENGINE_VERSION = 1;
+
 	/**
 	 * A boolean that controls if the operations will be written to the console.
 	 */
@@ -54,7 +61,7 @@ public class RomanCalculator {
 	 * @return the expression containing Arabic numbers
 	 * @throws BadExpressionException if the expression contains invalid characters
 	 */
-	private static String convertExpressionToArabic(String expression) throws BadExpressionException {
+	static String convertExpressionToArabic(String expression) throws BadExpressionException {
 
 		StringBuilder builder = new StringBuilder();
 		StringBuilder romanNumber = new StringBuilder();
@@ -122,9 +129,8 @@ public class RomanCalculator {
 	 * if a parenthesis is found, the method searches for its end (taking into account inner parenthesis)
 	 * and then calls this method again with the new input. The result is appended to a StringBuilder.
 	 * 
-	 * When all parenthesis have been solved, the method calls the solveOperationForOperator(char) method 
-	 * for every operator (in the proper order of operations).
-	 * The resulting String is then parsed into an Integer.
+	 * When all parenthesis have been solved, the method calls the calculateParenthesisFreeExpression(StringBuilder)
+	 * method to solve the remaining operations.
 	 * 
 	 * @param expression the expression to be calculated
 	 * @return the result of the expression in an Integer form
@@ -164,6 +170,23 @@ public class RomanCalculator {
 				finalExpression.append(expression.charAt(i));
 		}
 
+		return calculateParenthesisFreeExpression(finalExpression);
+	}
+
+	/**
+	 * Calculates the expression found in the specified StringBuilder, which must not contain any parenthesis,
+	 * and returns the result as an Integer.
+	 * 
+	 * The method calls the solveOperationForOperator(char) method for every operator 
+	 * (in the proper order of operations).
+	 * The resulting String is then parsed into an Integer.
+	 * 
+	 * @param finalExpression the expression to be calculated, its contents are replaced by the result
+	 * @return the result of the expression in an Integer form
+	 */
+
+	static int calculateParenthesisFreeExpression(StringBuilder finalExpression) {
+
 		if(debugMode) System.out.println("Expression: " + finalExpression.toString());
 
 		solveOperationsForOperator(finalExpression, '^');
@@ -0,0 +1,105 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+import romanCalculator.BatchCalculator;
+import romanCalculator.BatchResult;
+import romanCalculator.RomanCalculator;
+import romanCalculator.exception.BadExpressionException;
+
+/**
+ * A class containing unit tests used to test the implementation of the BatchCalculator class.
+ * The tests are written using the JUnit testing framework.
+ *
+ * @author Vlad-Cosmin Sandu
+ *
+ */
+public class BatchCalculatorTest {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Test
+	public void testResultsMatchRomanCalculator() throws BadExpressionException {
+		List<String> expressions = Arrays.asList(
+				"V",
+				"(-VII)",
+				"-(VII)",
+				" I + - V ",
+				"I - II - III",
+				"XII / III * II",
+				"III + (I - II) ^ II",
+				"(I + II) * III - (IV / II)",
+				"((I + II * III - IV) * V + VI * (VII + VIII) + IX - X + XI + XII / III) * II",
+				"I + ( II + III + ( IV + V + ( VI + VII + ( VIII + IX))))");
+
+		BatchResult result = BatchCalculator.calculate(expressions, 4);
+
+		assertEquals(expressions.size(), result.getExpressionCount());
+		for(int i = 0; i < expressions.size(); i++)
+			assertEquals(expressions.get(i), RomanCalculator.calculate(expressions.get(i)), result.getResult(i));
+	}
+
+	@Test
+	public void testEmptyExpression() throws BadExpressionException {
+		BatchResult result = BatchCalculator.calculate(Arrays.asList("", null));
+
+		assertEquals(null, result.getResult(0));
+		assertEquals(null, result.getResult(1));
+	}
+
+	@Test
+	public void testSharedSubexpressionsAreDeduplicated() throws BadExpressionException {
+		List<String> expressions = new ArrayList<String>();
+		for(int i = 1; i <= 100; i++)
+			expressions.add("((I + II) * (III + IV)) + " + RomanCalculator.arabicToRoman(i));
+
+		BatchResult result = BatchCalculator.calculate(expressions, 4);
+
+		assertEquals(400, result.getSubexpressionCount());
+		assertEquals(103, result.getUniqueSubexpressionCount());
+		assertTrue(result.getDeduplicationRatio() > 3);
+		assertTrue(result.getInternTableMemory() > 0);
+		assertEquals("XXII", result.getResult(0));
+		assertEquals("CXXI", result.getResult(99));
+	}
+
+	@Test
+	public void testInvalidExpressionDoesNotAffectOthers() throws BadExpressionException {
+		BatchResult result = BatchCalculator.calculate(Arrays.asList("(V + I) * II", "(V + I) * ( X + I"));
+
+		assertEquals("XII", result.getResult(0));
+
+		thrown.expect(BadExpressionException.class);
+		result.getResult(1);
+	}
+
+	@Test
+	public void testInvalidCharacter() throws BadExpressionException {
+		BatchResult result = BatchCalculator.calculate(Arrays.asList("MXII3"));
+
+		thrown.expect(BadExpressionException.class);
+		result.getResult(0);
+	}
+
+	@Test
+	public void testDeeplyNestedExpression() throws BadExpressionException {
+		StringBuilder expression = new StringBuilder("I");
+		for(int i = 0; i < 5000; i++)
+			expression.insert(0, '(').append(')');
+
+		BatchResult result = BatchCalculator.calculate(Arrays.asList("V + I", expression.toString()), 2);
+
+		assertEquals("VI", result.getResult(0));
+		assertEquals(RomanCalculator.calculate(expression.toString()), result.getResult(1));
+	}
+}
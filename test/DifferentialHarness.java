@@ -0,0 +1,445 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import romanCalculator.RomanCalculator;
+
+/**
+ * A class that compares a new calculator engine with the RomanCalculator (the legacy engine)
+ * on randomly generated expressions.
+ *
+ * For every expression, both engines are run and their outcomes (the result, or the class of the
+ * exception thrown) are compared. The mismatching expressions are shrunk with the ExpressionShrinker.
+ *
+ * Both engines are also timed. Before the timed cases, both engines run on a set of warm-up expressions,
+ * so the class loading and the JIT compilation are not counted, and the engine that runs first alternates
+ * from one case to the next, so neither engine always runs with a colder cache. The totals of the report
+ * only contain these first measurements.
+ * When the new engine is slower than the legacy engine by more than the given ratio, both are timed again
+ * a few times (keeping the fastest time of each) and, if the new engine is still slower, the expression
+ * is reported as a performance regression.
+ *
+ * A batch engine (such as the BatchCalculator) is compared with runBatch(List) or runBatches, which calculate
+ * the expressions as whole batches, so the parts shared between expressions are tested, and time every batch
+ * as a whole against the legacy engine.
+ *
+ * @author Vlad-Cosmin Sandu
+ *
+ */
+public class DifferentialHarness {
+
+	/**
+	 * A calculator engine, taking an expression and returning its result in Roman format.
+	 */
+	public interface Engine {
+		String calculate(String expression) throws Exception;
+	}
+
+	/**
+	 * A calculator engine that calculates a whole batch of expressions at once.
+	 */
+	public interface BatchEngine {
+		Batch calculate(List<String> expressions) throws Exception;
+	}
+
+	/**
+	 * The results of a batch, in the order of the expressions.
+	 */
+	public interface Batch {
+		String getResult(int index) throws Exception;
+	}
+
+	/**
+	 * The legacy engine, RomanCalculator.calculate(String).
+	 */
+	public static final Engine LEGACY_ENGINE = new Engine() {
+		@Override
+		public String calculate(String expression) throws Exception {
+			return RomanCalculator.calculate(expression);
+		}
+	};
+
+	private static final int RETIME_RUNS = 5;
+	private static final int WARMUP_CASES = 2000;
+	private static final int MAX_REPORTED_CASES = 20;
+
+	/**
+	 * Times under this value (in nanoseconds) are considered noise and never reported as slower.
+	 */
+	private static final long MIN_REPORTED_NANOS = 20000;
+
+	/**
+	 * The result or the exception of an engine for an expression.
+	 */
+	public static class Outcome {
+		final String result;
+		final Class<? extends Exception> exceptionClass;
+		final long nanos;
+
+		Outcome(String result, Class<? extends Exception> exceptionClass, long nanos) {
+			this.result = result;
+			this.exceptionClass = exceptionClass;
+			this.nanos = nanos;
+		}
+
+		boolean matches(Outcome other) {
+			if(exceptionClass != null || other.exceptionClass != null)
+				return exceptionClass == other.exceptionClass;
+
+			return result == null ? other.result == null : result.equals(other.result);
+		}
+
+		@Override
+		public String toString() {
+			return exceptionClass != null ? exceptionClass.getName() : String.valueOf(result);
+		}
+	}
+
+	/**
+	 * An expression on which the engines disagree, or on which the new engine is slower.
+	 */
+	public static class Case {
+		public final String expression;
+		public final String shrunkExpression;
+		public final Outcome legacyOutcome;
+		public final Outcome newOutcome;
+
+		Case(String expression, String shrunkExpression, Outcome legacyOutcome, Outcome newOutcome) {
+			this.expression = expression;
+			this.shrunkExpression = shrunkExpression;
+			this.legacyOutcome = legacyOutcome;
+			this.newOutcome = newOutcome;
+		}
+
+		@Override
+		public String toString() {
+			return "\"" + shrunkExpression + "\" (from \"" + expression + "\"): legacy " + legacyOutcome
+					+ " in " + legacyOutcome.nanos + "ns, new " + newOutcome + " in " + newOutcome.nanos + "ns";
+		}
+	}
+
+	/**
+	 * The results of a run of the harness.
+	 */
+	public static class Report {
+		public long caseCount;
+		public long mismatchCount;
+		public long slowerCount;
+		public long legacyNanos;
+		public long newNanos;
+		public final List<Case> mismatches = new ArrayList<Case>();
+		public final List<Case> slowerCases = new ArrayList<Case>();
+
+		@Override
+		public String toString() {
+			StringBuilder report = new StringBuilder();
+			report.append(caseCount).append(" cases, ").append(mismatchCount).append(" mismatches, ")
+				.append(slowerCount).append(" slower cases, legacy ").append(legacyNanos / 1000000)
+				.append("ms, new ").append(newNanos / 1000000).append("ms");
+
+			for(Case mismatch : mismatches)
+				report.append("\nMismatch: ").append(mismatch);
+			for(Case slowerCase : slowerCases)
+				report.append("\nSlower: ").append(slowerCase);
+
+			return report.toString();
+		}
+	}
+
+	private final Engine legacyEngine;
+	private final Engine newEngine;
+	private final double slowdownRatio;
+	private BatchEngine batchEngine;
+
+	/**
+	 * Creates a harness comparing the specified engines.
+	 *
+	 * @param legacyEngine the reference engine
+	 * @param newEngine the engine being tested
+	 * @param slowdownRatio how many times slower the new engine can be before a case is reported
+	 */
+
+	public DifferentialHarness(Engine legacyEngine, Engine newEngine, double slowdownRatio) {
+		this.legacyEngine = legacyEngine;
+		this.newEngine = newEngine;
+		this.slowdownRatio = slowdownRatio;
+	}
+
+	/**
+	 * Creates a harness comparing the legacy engine with a batch engine. The per-expression methods
+	 * (and the shrinking of the mismatches) run the batch engine on batches of a single expression.
+	 *
+	 * @param legacyEngine the reference engine
+	 * @param batchEngine the batch engine being tested
+	 * @param slowdownRatio how many times slower the new engine can be before it is reported
+	 */
+
+	public DifferentialHarness(Engine legacyEngine, final BatchEngine batchEngine, double slowdownRatio) {
+		this(legacyEngine, new Engine() {
+			@Override
+			public String calculate(String expression) throws Exception {
+				return batchEngine.calculate(Collections.singletonList(expression)).getResult(0);
+			}
+		}, slowdownRatio);
+		this.batchEngine = batchEngine;
+	}
+
+	/**
+	 * Runs both engines on the specified number of generated expressions, after running them
+	 * on WARMUP_CASES other generated expressions (which are not compared nor timed).
+	 *
+	 * @param generator the generator of the expressions
+	 * @param caseCount the number of expressions to compare
+	 * @return the report of the run
+	 */
+
+	public Report run(ExpressionGenerator generator, long caseCount) {
+		Report report = new Report();
+
+		for(int i = 0; i < WARMUP_CASES; i++){
+			String expression = generator.next();
+			run(legacyEngine, expression);
+			run(newEngine, expression);
+		}
+
+		for(long i = 0; i < caseCount; i++)
+			check(generator.next(), report);
+
+		return report;
+	}
+
+	/**
+	 * Runs the legacy engine on every expression and the batch engine on all the expressions at once,
+	 * then compares the outcome of every expression. The mismatching expressions are shrunk on their own,
+	 * so a mismatch that only appears inside the batch is reported unshrunk.
+	 *
+	 * Both engines are first run on (up to) WARMUP_CASES of the expressions. Then each engine is timed twice
+	 * on all the expressions, in the order batch, legacy, legacy, batch, keeping the fastest time of each.
+	 * If the batch engine takes more than slowdownRatio times the legacy time, the slowerCount of
+	 * the report is 1.
+	 *
+	 * @param expressions the expressions of the batch
+	 * @return the report of the run
+	 */
+
+	public Report runBatch(List<String> expressions) {
+		Report report = new Report();
+
+		warmUpBatch(expressions);
+		compareBatch(expressions, report);
+
+		return report;
+	}
+
+	/**
+	 * Generates the specified number of expressions in batches of the specified size and compares
+	 * every batch like runBatch(List). The engines are warmed up on the first batch only.
+	 * The slowerCount of the report is the number of batches on which the batch engine was too slow.
+	 *
+	 * @param generator the generator of the batches
+	 * @param caseCount the total number of expressions
+	 * @param batchSize the number of expressions of every batch
+	 * @return the report of the run
+	 */
+
+	public Report runBatches(ExpressionGenerator generator, long caseCount, int batchSize) {
+		Report report = new Report();
+
+		for(long remaining = caseCount; remaining > 0; remaining -= batchSize){
+			List<String> expressions = generator.nextBatch((int) Math.min(batchSize, remaining));
+
+			if(remaining == caseCount)
+				warmUpBatch(expressions);
+			compareBatch(expressions, report);
+		}
+
+		return report;
+	}
+
+	private void warmUpBatch(List<String> expressions) {
+		if(batchEngine == null)
+			throw new IllegalStateException("The harness wasn't created with a batch engine.");
+
+		List<String> warmupExpressions = expressions.subList(0, Math.min(WARMUP_CASES, expressions.size()));
+		timeLegacyEngine(warmupExpressions);
+		timeBatchEngine(warmupExpressions);
+	}
+
+	/**
+	 * Compares and times both engines on a batch and adds the results to the report.
+	 * The legacy results are compared with the batch as they are calculated, so only the results
+	 * of the batch engine are kept in memory; the second runs of both engines are only timed.
+	 */
+	private void compareBatch(List<String> expressions, Report report) {
+		long start = System.nanoTime();
+		Batch batch = calculateBatch(expressions);
+		for(int i = 0; i < expressions.size(); i++)
+			getOutcome(batch, i);
+		long newNanos = System.nanoTime() - start;
+
+		long legacyNanos = 0;
+		for(int i = 0; i < expressions.size(); i++){
+			Outcome legacyOutcome = run(legacyEngine, expressions.get(i));
+			Outcome newOutcome = getOutcome(batch, i);
+			legacyNanos += legacyOutcome.nanos;
+
+			if(legacyOutcome.matches(newOutcome))
+				continue;
+
+			report.mismatchCount++;
+			if(report.mismatches.size() < MAX_REPORTED_CASES)
+				report.mismatches.add(new Case(expressions.get(i), shrinkMismatch(expressions.get(i)),
+						legacyOutcome, newOutcome));
+		}
+		batch = null;
+
+		legacyNanos = Math.min(legacyNanos, timeLegacyEngine(expressions));
+		newNanos = Math.min(newNanos, timeBatchEngine(expressions));
+
+		report.caseCount += expressions.size();
+		report.legacyNanos += legacyNanos;
+		report.newNanos += newNanos;
+
+		if(newNanos > legacyNanos * slowdownRatio){
+			report.slowerCount++;
+
+			if(report.slowerCases.size() < MAX_REPORTED_CASES)
+				report.slowerCases.add(new Case("batch of " + expressions.size() + " expressions", "",
+						new Outcome(null, null, legacyNanos), new Outcome(null, null, newNanos)));
+		}
+	}
+
+	/**
+	 * Runs the legacy engine on every expression and returns the time of the whole run.
+	 */
+	private long timeLegacyEngine(List<String> expressions) {
+		long start = System.nanoTime();
+
+		for(String expression : expressions)
+			run(legacyEngine, expression);
+
+		return System.nanoTime() - start;
+	}
+
+	/**
+	 * Runs the batch engine on all the expressions, reads every result and returns the time of the whole run.
+	 */
+	private long timeBatchEngine(List<String> expressions) {
+		long start = System.nanoTime();
+		Batch batch = calculateBatch(expressions);
+
+		for(int i = 0; i < expressions.size(); i++)
+			getOutcome(batch, i);
+
+		return System.nanoTime() - start;
+	}
+
+	private Batch calculateBatch(List<String> expressions) {
+		try {
+			return batchEngine.calculate(expressions);
+		} catch (Exception e) {
+			throw new IllegalStateException("The batch engine failed.", e);
+		}
+	}
+
+	private static Outcome getOutcome(Batch batch, int index) {
+		try {
+			return new Outcome(batch.getResult(index), null, 0);
+		} catch (Exception e) {
+			return new Outcome(null, e.getClass(), 0);
+		}
+	}
+
+	/**
+	 * Compares both engines on the specified expression and adds the result to the report.
+	 *
+	 * @param expression the expression to compare
+	 * @param report the report of the run
+	 */
+
+	public void check(String expression, Report report) {
+		Outcome legacyOutcome;
+		Outcome newOutcome;
+
+		if(report.caseCount % 2 == 0){
+			legacyOutcome = run(legacyEngine, expression);
+			newOutcome = run(newEngine, expression);
+		}
+		else{
+			newOutcome = run(newEngine, expression);
+			legacyOutcome = run(legacyEngine, expression);
+		}
+
+		report.caseCount++;
+		report.legacyNanos += legacyOutcome.nanos;
+		report.newNanos += newOutcome.nanos;
+
+		if(!legacyOutcome.matches(newOutcome)){
+			report.mismatchCount++;
+
+			if(report.mismatches.size() < MAX_REPORTED_CASES){
+				String shrunkExpression = shrinkMismatch(expression);
+
+				report.mismatches.add(new Case(expression, shrunkExpression,
+						run(legacyEngine, shrunkExpression), run(newEngine, shrunkExpression)));
+			}
+			return;
+		}
+
+		if(isSlower(legacyOutcome, newOutcome)){
+			legacyOutcome = retime(legacyEngine, expression, legacyOutcome);
+			newOutcome = retime(newEngine, expression, newOutcome);
+
+			if(isSlower(legacyOutcome, newOutcome)){
+				report.slowerCount++;
+
+				if(report.slowerCases.size() < MAX_REPORTED_CASES)
+					report.slowerCases.add(new Case(expression, expression, legacyOutcome, newOutcome));
+			}
+		}
+	}
+
+	private String shrinkMismatch(String expression) {
+		return new ExpressionShrinker(new ExpressionShrinker.Predicate() {
+			@Override
+			public boolean fails(String candidate) {
+				return !run(legacyEngine, candidate).matches(run(newEngine, candidate));
+			}
+		}).shrink(expression);
+	}
+
+	private boolean isSlower(Outcome legacyOutcome, Outcome newOutcome) {
+		return newOutcome.nanos > MIN_REPORTED_NANOS && newOutcome.nanos > legacyOutcome.nanos * slowdownRatio;
+	}
+
+	/**
+	 * Runs the engine a few more times and returns the outcome with the fastest time.
+	 */
+	private static Outcome retime(Engine engine, String expression, Outcome outcome) {
+		Outcome fastest = outcome;
+
+		for(int i = 0; i < RETIME_RUNS; i++){
+			Outcome current = run(engine, expression);
+			if(current.nanos < fastest.nanos)
+				fastest = current;
+		}
+
+		return fastest;
+	}
+
+	/**
+	 * Runs the engine on the expression, measuring the time and catching any exception.
+	 */
+	private static Outcome run(Engine engine, String expression) {
+		long start = System.nanoTime();
+
+		try {
+			String result = engine.calculate(expression);
+			return new Outcome(result, null, System.nanoTime() - start);
+		} catch (Exception e) {
+			return new Outcome(null, e.getClass(), System.nanoTime() - start);
+		}
+	}
+}
@@ -0,0 +1,195 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Arrays;
+import java.util.List;
+
+import org.junit.Test;
+
+import romanCalculator.BatchCalculator;
+import romanCalculator.BatchResult;
+import romanCalculator.RomanCalculator;
+
+/**
+ * A class containing the differential tests of the calculator engines against the RomanCalculator,
+ * and the unit tests of the harness itself.
+ * The number of generated expressions can be changed with the fuzz.cases system property
+ * (e.g. -Dfuzz.cases=1000000) and the seed with the fuzz.seed system property.
+ * The BatchCalculator is compared on batches of fuzz.batchSize expressions (100000 by default).
+ * The reports are printed only if the fuzz.verbose system property is true. The BatchCalculator test
+ * only fails on the slower batches if the fuzz.assertTiming system property is true, since the times
+ * depend on the load of the machine.
+ * The tests are written using the JUnit testing framework.
+ *
+ * @author Vlad-Cosmin Sandu
+ *
+ */
+public class DifferentialHarnessTest {
+
+	private static final long CASES = Long.getLong("fuzz.cases", 2000);
+	private static final long SEED = Long.getLong("fuzz.seed", 2015);
+	private static final int BATCH_SIZE = Integer.getInteger("fuzz.batchSize", 100000);
+	private static final boolean VERBOSE = Boolean.getBoolean("fuzz.verbose");
+	private static final boolean ASSERT_TIMING = Boolean.getBoolean("fuzz.assertTiming");
+
+	/**
+	 * How many times slower than the legacy engine a whole batch of the BatchCalculator can be before it is reported
+	 * (and the test fails, if the timing is asserted).
+	 * The BatchCalculator is expected to be faster, since it calculates the shared subexpressions only once;
+	 * the margin absorbs the thread pool start and the timing noise of small batches.
+	 */
+	private static final double BATCH_SLOWDOWN_RATIO = 2;
+
+	/**
+	 * The BatchCalculator, using 4 threads.
+	 */
+	private static final DifferentialHarness.BatchEngine BATCH_ENGINE = new DifferentialHarness.BatchEngine() {
+		@Override
+		public DifferentialHarness.Batch calculate(List<String> expressions) {
+			final BatchResult result = BatchCalculator.calculate(expressions, 4);
+
+			return new DifferentialHarness.Batch() {
+				@Override
+				public String getResult(int index) throws Exception {
+					return result.getResult(index);
+				}
+			};
+		}
+	};
+
+	/**
+	 * A batch engine with a bug: it returns a wrong result for the repeated expressions.
+	 */
+	private static final DifferentialHarness.BatchEngine BROKEN_BATCH_ENGINE = new DifferentialHarness.BatchEngine() {
+		@Override
+		public DifferentialHarness.Batch calculate(final List<String> expressions) {
+			return new DifferentialHarness.Batch() {
+				@Override
+				public String getResult(int index) throws Exception {
+					if(expressions.indexOf(expressions.get(index)) != index)
+						return "";
+					return RomanCalculator.calculate(expressions.get(index));
+				}
+			};
+		}
+	};
+
+	/**
+	 * An engine with a bug: it ignores the sign conflicts that RomanCalculator folds.
+	 */
+	private static final DifferentialHarness.Engine BROKEN_ENGINE = new DifferentialHarness.Engine() {
+		@Override
+		public String calculate(String expression) throws Exception {
+			if(expression.replace(" ", "").contains("--"))
+				return "";
+			return RomanCalculator.calculate(expression);
+		}
+	};
+
+	@Test
+	public void testBatchCalculatorMatchesLegacy() {
+		DifferentialHarness harness = new DifferentialHarness(DifferentialHarness.LEGACY_ENGINE, BATCH_ENGINE, BATCH_SLOWDOWN_RATIO);
+		DifferentialHarness.Report report = harness.runBatches(new ExpressionGenerator(SEED, 3, 4), CASES, BATCH_SIZE);
+
+		printIfVerbose(report);
+		assertEquals(report.toString(), 0, report.mismatchCount);
+		if(ASSERT_TIMING)
+			assertEquals(report.toString(), 0, report.slowerCount);
+		assertEquals(CASES, report.caseCount);
+	}
+
+	@Test
+	public void testBatchMismatchIsDetected() {
+		DifferentialHarness harness = new DifferentialHarness(DifferentialHarness.LEGACY_ENGINE, BROKEN_BATCH_ENGINE, 1000);
+		List<String> expressions = Arrays.asList("V + I", "(V + I) * II", "V + I", "X");
+		DifferentialHarness.Report report = harness.runBatch(expressions);
+
+		assertEquals(1, report.mismatchCount);
+		assertEquals("V + I", report.mismatches.get(0).expression);
+	}
+
+	@Test
+	public void testLegacyMatchesItself() {
+		DifferentialHarness harness = new DifferentialHarness(DifferentialHarness.LEGACY_ENGINE, DifferentialHarness.LEGACY_ENGINE, 1000);
+		DifferentialHarness.Report report = harness.run(new ExpressionGenerator(SEED, 3, 4), CASES);
+
+		assertEquals(report.toString(), 0, report.mismatchCount);
+	}
+
+	@Test
+	public void testMismatchIsDetectedAndShrunk() {
+		DifferentialHarness harness = new DifferentialHarness(DifferentialHarness.LEGACY_ENGINE, BROKEN_ENGINE, 1000);
+		DifferentialHarness.Report report = new DifferentialHarness.Report();
+
+		harness.check("(I + II) * III - (IV - - II) + X", report);
+
+		assertEquals(1, report.mismatchCount);
+		assertEquals("--", report.mismatches.get(0).shrunkExpression);
+	}
+
+	@Test
+	public void testSlowerEngineIsReported() {
+		DifferentialHarness.Engine slowEngine = new DifferentialHarness.Engine() {
+			@Override
+			public String calculate(String expression) throws Exception {
+				Thread.sleep(1);
+				return RomanCalculator.calculate(expression);
+			}
+		};
+		DifferentialHarness harness = new DifferentialHarness(DifferentialHarness.LEGACY_ENGINE, slowEngine, 2);
+		DifferentialHarness.Report report = new DifferentialHarness.Report();
+
+		harness.check("V + I", report);
+
+		assertEquals(0, report.mismatchCount);
+		assertEquals(1, report.slowerCount);
+	}
+
+	@Test
+	public void testGeneratorIsDeterministic() {
+		ExpressionGenerator first = new ExpressionGenerator(SEED, 3, 4);
+		ExpressionGenerator second = new ExpressionGenerator(SEED, 3, 4);
+
+		for(int i = 0; i < 100; i++)
+			assertEquals(first.next(), second.next());
+	}
+
+	@Test
+	public void testGeneratorProducesDeepNesting() {
+		ExpressionGenerator generator = new ExpressionGenerator(SEED, 3, 4);
+		int maxNesting = 0;
+
+		for(int i = 0; i < 2000; i++){
+			String expression = generator.next();
+			int nesting = 0;
+
+			while(nesting < expression.length() && expression.charAt(nesting) == '(')
+				nesting++;
+			maxNesting = Math.max(maxNesting, nesting);
+		}
+
+		assertTrue(String.valueOf(maxNesting), maxNesting > 100);
+	}
+
+	@Test
+	public void testShrinkerKeepsTheFailure() {
+		ExpressionShrinker shrinker = new ExpressionShrinker(new ExpressionShrinker.Predicate() {
+			@Override
+			public boolean fails(String expression) {
+				return expression.contains("^");
+			}
+		});
+
+		String shrunk = shrinker.shrink("((I + II) * III) ^ II - (V * X)");
+
+		assertTrue(shrunk, shrunk.contains("^"));
+		assertEquals("^", shrunk);
+	}
+
+	private static void printIfVerbose(DifferentialHarness.Report report) {
+		if(VERBOSE)
+			System.out.println(report);
+	}
+}
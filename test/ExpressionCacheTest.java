@@ -0,0 +1,268 @@
+package test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+import org.junit.rules.TemporaryFolder;
+
+import romanCalculator.ExpressionCache;
+import romanCalculator.RomanCalculator;
+import romanCalculator.exception.BadExpressionException;
+
+/**
+ * A class containing unit tests used to test the implementation of the ExpressionCache class.
+ * The tests are written using the JUnit testing framework.
+ *
+ * @author Vlad-Cosmin Sandu
+ *
+ */
+public class ExpressionCacheTest {
+
+	@Rule
+	public ExpectedException thrown = ExpectedException.none();
+
+	@Rule
+	public TemporaryFolder folder = new TemporaryFolder();
+
+	private static final String EXPRESSION = "((I + II * III - IV) * V + VI * (VII + VIII) + IX - X + XI + XII / III) * II";
+
+	private File createSnapshot() throws BadExpressionException, IOException {
+		File snapshotFile = new File(folder.getRoot(), "cache.snapshot");
+		ExpressionCache cache = new ExpressionCache(snapshotFile);
+
+		cache.calculate(EXPRESSION);
+		cache.calculate("V + I");
+		cache.snapshot();
+
+		return snapshotFile;
+	}
+
+	@Test
+	public void testCalculate() throws BadExpressionException {
+		ExpressionCache cache = new ExpressionCache(new File(folder.getRoot(), "missing.snapshot"));
+
+		assertEquals(null, cache.calculate(""));
+		assertEquals("VI", cache.calculate("V + I"));
+		assertEquals("VI", cache.calculate("V + I"));
+		assertEquals(1, cache.size());
+	}
+
+	@Test
+	public void testCalculateInvalidExpressionIsNotCached() throws BadExpressionException {
+		ExpressionCache cache = new ExpressionCache(new File(folder.getRoot(), "missing.snapshot"));
+
+		thrown.expect(BadExpressionException.class);
+
+		try {
+			cache.calculate("(V + I");
+		} finally {
+			assertEquals(0, cache.size());
+		}
+	}
+
+	@Test
+	public void testSnapshotIsLoadedAfterRestart() throws BadExpressionException, IOException {
+		ExpressionCache cache = new ExpressionCache(createSnapshot());
+
+		assertEquals(2, cache.size());
+		assertEquals("CCXXXVIII", cache.calculate(EXPRESSION));
+		assertEquals("VI", cache.calculate("V + I"));
+		assertEquals(2, cache.size());
+	}
+
+	@Test
+	public void testCorruptedPayloadIsIgnored() throws BadExpressionException, IOException {
+		File snapshotFile = createSnapshot();
+
+		try(RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")){
+			file.seek(file.length() - 1);
+			int lastByte = file.read();
+			file.seek(file.length() - 1);
+			file.write(lastByte ^ 0xFF);
+		}
+
+		ExpressionCache cache = new ExpressionCache(snapshotFile);
+		assertEquals(0, cache.size());
+		assertEquals("VI", cache.calculate("V + I"));
+	}
+
+	@Test
+	public void testTruncatedSnapshotIsIgnored() throws BadExpressionException, IOException {
+		File snapshotFile = createSnapshot();
+
+		try(RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")){
+			file.setLength(file.length() / 2);
+		}
+
+		assertEquals(0, new ExpressionCache(snapshotFile).size());
+
+		try(RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")){
+			file.setLength(10);
+		}
+
+		assertEquals(0, new ExpressionCache(snapshotFile).size());
+	}
+
+	@Test
+	public void testUnknownVersionIsIgnored() throws BadExpressionException, IOException {
+		File snapshotFile = createSnapshot();
+
+		try(RandomAccessFile file = new RandomAccessFile(snapshotFile, "rw")){
+			file.seek(4);
+			file.writeInt(Integer.MAX_VALUE);
+		}
+
+		assertEquals(0, new ExpressionCache(snapshotFile).size());
+	}
+
+	@Test
+	public void testSnapshotOfAnotherEngineVersionIsIgnored() throws BadExpressionException, IOException {
+		File snapshotFile = new File(folder.getRoot(), "cache.snapshot");
+		writeSnapshot(snapshotFile, RomanCalculator.ENGINE_VERSION + 1, "V + I", "VI");
+
+		ExpressionCache cache = new ExpressionCache(snapshotFile);
+		assertEquals(0, cache.size());
+		assertEquals("VI", cache.calculate("V + I"));
+	}
+
+	@Test
+	public void testLeastRecentlyUsedExpressionIsEvicted() throws BadExpressionException, IOException {
+		File snapshotFile = new File(folder.getRoot(), "cache.snapshot");
+		ExpressionCache cache = new ExpressionCache(snapshotFile, 2);
+
+		cache.calculate("I + I");
+		cache.calculate("II + II");
+		cache.calculate("I + I");
+		cache.calculate("III + III");
+		assertEquals(2, cache.size());
+
+		cache.snapshot();
+		assertEquals(2, new ExpressionCache(snapshotFile).size());
+		assertEquals(1, new ExpressionCache(snapshotFile, 1).size());
+	}
+
+	@Test
+	public void testUnchangedCacheIsNotWrittenAgain() throws BadExpressionException, IOException {
+		ExpressionCache cache = new ExpressionCache(createSnapshot());
+
+		assertFalse(cache.snapshot());
+		cache.calculate("V + I");
+		assertFalse(cache.snapshot());
+		cache.calculate("X + I");
+		assertTrue(cache.snapshot());
+		assertFalse(cache.snapshot());
+	}
+
+	@Test
+	public void testKnownExpressionIsNotParsedAgain() throws BadExpressionException, IOException {
+		File snapshotFile = new File(folder.getRoot(), "cache.snapshot");
+		writeSnapshot(snapshotFile, RomanCalculator.ENGINE_VERSION, "V + I", "X");
+
+		ExpressionCache cache = new ExpressionCache(snapshotFile);
+		assertEquals(1, cache.size()); // Waits for the snapshot to be loaded
+
+		assertEquals("X", cache.calculate("V + I"));
+		assertEquals("XI", cache.calculate("X + I"));
+	}
+
+	@Test
+	public void testNewExpressionAfterRestartIsWritten() throws BadExpressionException, IOException {
+		File snapshotFile = createSnapshot();
+		ExpressionCache cache = new ExpressionCache(snapshotFile);
+
+		cache.calculate("X + I");
+		assertTrue(cache.snapshot());
+		assertEquals(3, new ExpressionCache(snapshotFile).size());
+	}
+
+	@Test
+	public void testLoadedExpressionsDoNotEvictNewOnes() throws BadExpressionException, IOException {
+		File snapshotFile = new File(folder.getRoot(), "cache.snapshot");
+		writeSnapshot(snapshotFile, RomanCalculator.ENGINE_VERSION, "V + V", "X", "L + L", "C", "D + D", "M");
+
+		ExpressionCache cache = new ExpressionCache(snapshotFile, 2);
+		cache.calculate("X + I");
+		assertEquals(2, cache.size());
+		assertTrue(cache.snapshot());
+
+		String snapshot = new String(Files.readAllBytes(snapshotFile.toPath()), StandardCharsets.ISO_8859_1);
+		assertTrue(snapshot.contains("X + I"));
+		assertFalse(snapshot.contains("V + V"));
+	}
+
+	@Test
+	public void testWarmStartReturnsTheStoredResults() throws BadExpressionException, IOException {
+		List<String> expressions = new ArrayList<String>();
+		for(int i = 1; i <= 2000; i++)
+			expressions.add(EXPRESSION + " + " + RomanCalculator.arabicToRoman(i));
+
+		File snapshotFile = new File(folder.getRoot(), "cache.snapshot");
+		ExpressionCache coldCache = new ExpressionCache(snapshotFile);
+		long[] coldTimes = timeFirstResults(coldCache, expressions);
+		coldCache.snapshot();
+
+		ExpressionCache warmCache = new ExpressionCache(snapshotFile);
+		long[] warmTimes = timeFirstResults(warmCache, expressions);
+
+		// The times are only informative: the warm start also benefits from the JIT warm-up of the cold one
+		if(Boolean.getBoolean("cache.verbose"))
+			System.out.println("Cold start: first result " + coldTimes[0] / 1000 + "us, all results " + coldTimes[1] / 1000
+					+ "us. Warm start: first result " + warmTimes[0] / 1000 + "us, all results " + warmTimes[1] / 1000 + "us.");
+
+		assertEquals(expressions.size(), warmCache.size());
+		for(String expression : expressions)
+			assertEquals(coldCache.calculate(expression), warmCache.calculate(expression));
+	}
+
+	/**
+	 * Calculates the expressions and returns the time until the first result and until all the results, in nanoseconds.
+	 */
+	private static long[] timeFirstResults(ExpressionCache cache, List<String> expressions) throws BadExpressionException {
+		long start = System.nanoTime();
+		cache.calculate(expressions.get(0));
+		long firstResult = System.nanoTime() - start;
+
+		for(String expression : expressions)
+			cache.calculate(expression);
+
+		return new long[] { firstResult, System.nanoTime() - start };
+	}
+
+	/**
+	 * Writes a valid snapshot containing the specified expressions and results.
+	 */
+	private static void writeSnapshot(File snapshotFile, int engineVersion, String... entries) throws IOException {
+		CheckedOutputStream checkedOutput = new CheckedOutputStream(new FileOutputStream(snapshotFile), new CRC32());
+
+		try(DataOutputStream output = new DataOutputStream(checkedOutput)){
+			output.writeInt(0x52434353);
+			output.writeInt(3);
+			output.writeInt(engineVersion);
+
+			for(String entry : entries){
+				byte[] bytes = entry.getBytes(StandardCharsets.UTF_8);
+				output.writeInt(bytes.length);
+				output.write(bytes);
+			}
+
+			output.writeInt(entries.length / 2);
+			output.writeLong(checkedOutput.getChecksum().getValue());
+		}
+	}
+}
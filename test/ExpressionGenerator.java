@@ -0,0 +1,198 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import romanCalculator.RomanCalculator;
+
+/**
+ * A class that generates random expressions following the grammar accepted by the RomanCalculator:
+ *
+ * expression := term (operator term)*
+ * term := [sign] number | [sign] ( expression )
+ *
+ * Signs, spaces and nesting are added randomly, and a few expressions are wrapped in thousands of parenthesis
+ * to test the deep nesting that random nesting never reaches. The exponents are kept small (I to IV), since the
+ * RomanCalculator calculates them by repeated multiplication. A small part of the expressions are made invalid
+ * (bad numerals, invalid characters, missing operands or parenthesis) in order to compare the exceptions too.
+ * The generator is deterministic for a given seed.
+ *
+ * @author Vlad-Cosmin Sandu
+ *
+ */
+public class ExpressionGenerator {
+
+	private static final String OPERATORS = "+-*/+-*/^";
+	private static final String[] INVALID_NUMERALS = { "IIII", "IM", "VX", "MMM", "XLX" };
+	private static final String INVALID_CHARACTERS = "0aZ.%";
+
+	/**
+	 * Used when combining the expressions of a batch. The multiplication and the exponent are left out,
+	 * since multiplying whole expressions quickly gives results of millions of numerals, whose conversion
+	 * to the Roman format would take most of the time of both engines.
+	 */
+	private static final String BATCH_OPERATORS = "+-+-/";
+	private static final int MAX_BATCH_EXPRESSION_LENGTH = 400;
+
+	/**
+	 * One expression out of DEEP_NESTING_RATE is wrapped in MAX_DEEP_NESTING / 2 to MAX_DEEP_NESTING parenthesis.
+	 * The RomanCalculator calculates the parenthesis recursively, so much deeper nesting would overflow its stack.
+	 */
+	private static final int DEEP_NESTING_RATE = 100;
+	private static final int MAX_DEEP_NESTING = 5000;
+
+	private final Random random;
+	private final int maxDepth;
+	private final int maxTerms;
+
+	/**
+	 * Creates a generator with the specified seed and limits.
+	 *
+	 * @param seed the seed of the random number generator
+	 * @param maxDepth the maximum number of nested parenthesis
+	 * @param maxTerms the maximum number of terms at every level
+	 */
+
+	public ExpressionGenerator(long seed, int maxDepth, int maxTerms) {
+		this.random = new Random(seed);
+		this.maxDepth = maxDepth;
+		this.maxTerms = maxTerms;
+	}
+
+	/**
+	 * Returns the next random expression.
+	 *
+	 * @return the expression
+	 */
+
+	public String next() {
+		String expression = generateExpression(0);
+
+		if(random.nextInt(DEEP_NESTING_RATE) == 0)
+			expression = nest(expression, MAX_DEEP_NESTING / 2 + random.nextInt(MAX_DEEP_NESTING / 2 + 1));
+
+		if(random.nextInt(20) == 0)
+			return corrupt(expression);
+
+		return expression;
+	}
+
+	/**
+	 * Returns a batch of random expressions built like the batches generated from templates: besides new
+	 * expressions, the batch contains exact repeats of earlier expressions, earlier expressions combined
+	 * as parenthesized subterms, and earlier expressions combined with a varying number.
+	 * Invalid expressions are reused too, so a failing subexpression is shared by several expressions.
+	 *
+	 * @param size the number of expressions
+	 * @return the expressions
+	 */
+
+	public List<String> nextBatch(int size) {
+		List<String> batch = new ArrayList<String>(size);
+
+		for(int i = 0; i < size; i++){
+			String expression;
+
+			switch(batch.isEmpty() ? 0 : random.nextInt(4)){
+			case 1:	expression = pick(batch);	break;
+			case 2:	expression = limitLength("(" + pick(batch) + ")" + pickBatchOperator() + "(" + pick(batch) + ")");	break;
+			case 3:	expression = limitLength("(" + pick(batch) + ") " + pickBatchOperator() + " " + generateNumber());	break;
+			default:	expression = next();	break;
+			}
+
+			batch.add(expression);
+		}
+
+		return batch;
+	}
+
+	/**
+	 * Replaces a combination of earlier expressions by a new expression if it is too long,
+	 * so the expressions don't keep growing.
+	 */
+	private String limitLength(String combination) {
+		return combination.length() > MAX_BATCH_EXPRESSION_LENGTH ? next() : combination;
+	}
+
+	private String pick(List<String> batch) {
+		return batch.get(random.nextInt(batch.size()));
+	}
+
+	private char pickBatchOperator() {
+		return BATCH_OPERATORS.charAt(random.nextInt(BATCH_OPERATORS.length()));
+	}
+
+	private String generateExpression(int depth) {
+		StringBuilder expression = new StringBuilder();
+		int terms = 1 + random.nextInt(maxTerms);
+
+		for(int i = 0; i < terms; i++){
+			char operator = ' ';
+
+			if(i > 0){
+				operator = OPERATORS.charAt(random.nextInt(OPERATORS.length()));
+				appendSpaces(expression);
+				expression.append(operator);
+			}
+			appendSpaces(expression);
+
+			if(random.nextInt(8) == 0)
+				expression.append(random.nextBoolean() ? '-' : '+');
+
+			if(operator == '^')
+				expression.append(RomanCalculator.arabicToRoman(1 + random.nextInt(4)));
+			else if(depth < maxDepth && random.nextInt(3) == 0)
+				expression.append('(').append(generateExpression(depth + 1)).append(')');
+			else
+				expression.append(generateNumber());
+		}
+		appendSpaces(expression);
+
+		return expression.toString();
+	}
+
+	/**
+	 * Mostly small numbers, so the results stay in a reasonable range.
+	 */
+	private String generateNumber() {
+		int value = random.nextInt(10) == 0 ? 1 + random.nextInt(2999) : 1 + random.nextInt(20);
+		return RomanCalculator.arabicToRoman(value);
+	}
+
+	private void appendSpaces(StringBuilder expression) {
+		int spaces = random.nextInt(4) == 0 ? random.nextInt(3) : 0;
+		for(int i = 0; i < spaces; i++)
+			expression.append(' ');
+	}
+
+	private static String nest(String expression, int depth) {
+		StringBuilder nested = new StringBuilder(expression.length() + 2 * depth);
+
+		for(int i = 0; i < depth; i++)
+			nested.append('(');
+		nested.append(expression);
+		for(int i = 0; i < depth; i++)
+			nested.append(')');
+
+		return nested.toString();
+	}
+
+	/**
+	 * Makes the expression invalid by inserting, removing or replacing a character.
+	 */
+	private String corrupt(String expression) {
+		StringBuilder corrupted = new StringBuilder(expression);
+		int position = random.nextInt(corrupted.length() + 1);
+
+		switch(random.nextInt(5)){
+		case 0:	corrupted.insert(position, INVALID_NUMERALS[random.nextInt(INVALID_NUMERALS.length)]);	break;
+		case 1:	corrupted.insert(position, INVALID_CHARACTERS.charAt(random.nextInt(INVALID_CHARACTERS.length())));	break;
+		case 2:	corrupted.insert(position, random.nextBoolean() ? '(' : ')');	break;
+		case 3:	corrupted.insert(position, OPERATORS.charAt(random.nextInt(OPERATORS.length())));	break;
+		case 4:	if(position < corrupted.length()) corrupted.deleteCharAt(position);	break;
+		}
+
+		return corrupted.toString();
+	}
+}
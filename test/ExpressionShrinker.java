@@ -0,0 +1,156 @@
+package test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * A class that reduces a failing expression to a smaller expression that still fails,
+ * so the differences between two calculators are easier to understand.
+ *
+ * The shrinker repeatedly tries smaller variants of the expression (removing the spaces, removing a token, removing
+ * an operator and its right operand, removing a pair of parenthesis, replacing a parenthesis or a number
+ * with I) and keeps the first variant that still fails, until no variant fails.
+ *
+ * @author Vlad-Cosmin Sandu
+ *
+ */
+public class ExpressionShrinker {
+
+	/**
+	 * Decides if an expression still shows the failure being shrunk.
+	 */
+	public interface Predicate {
+		boolean fails(String expression);
+	}
+
+	private static final String OPERATORS = "+-*/^";
+	private static final int MAX_ATTEMPTS = 10000;
+
+	private final Predicate predicate;
+
+	public ExpressionShrinker(Predicate predicate) {
+		this.predicate = predicate;
+	}
+
+	/**
+	 * Shrinks the specified expression, which must fail.
+	 *
+	 * @param expression the failing expression
+	 * @return the smallest failing expression found
+	 */
+
+	public String shrink(String expression) {
+		String current = expression.trim();
+		if(!predicate.fails(current))
+			current = expression;
+
+		int attempts = 0;
+		boolean shrunk = true;
+
+		while(shrunk && attempts < MAX_ATTEMPTS){
+			shrunk = false;
+
+			for(String candidate : getCandidates(current)){
+				attempts++;
+
+				if(candidate.length() < current.length() && predicate.fails(candidate)){
+					current = candidate;
+					shrunk = true;
+					break;
+				}
+				if(attempts >= MAX_ATTEMPTS)
+					break;
+			}
+		}
+
+		return current;
+	}
+
+	/**
+	 * Returns the smaller variants of the expression, the biggest reductions first.
+	 */
+	private static List<String> getCandidates(String expression) {
+		List<String> candidates = new ArrayList<String>();
+		List<int[]> tokens = tokenize(expression);
+
+		if(expression.indexOf(' ') != -1)
+			candidates.add(expression.replace(" ", ""));
+
+		for(int[] token : tokens){
+			if(expression.charAt(token[0]) != '(')
+				continue;
+
+			int end = findClosingParenthesis(expression, token[0]);
+			if(end == -1)
+				continue;
+
+			candidates.add(replace(expression, token[0], end + 1, "I"));
+			candidates.add(expression.substring(token[0] + 1, end));
+			candidates.add(expression.substring(0, token[0])
+					+ expression.substring(token[0] + 1, end) + expression.substring(end + 1));
+		}
+
+		for(int i = 0; i + 1 < tokens.size(); i++){
+			int[] token = tokens.get(i);
+			int[] next = tokens.get(i + 1);
+
+			if(OPERATORS.indexOf(expression.charAt(token[0])) != -1 && expression.charAt(next[0]) != '(')
+				candidates.add(replace(expression, token[0], next[1], ""));
+		}
+
+		for(int[] token : tokens){
+			candidates.add(replace(expression, token[0], token[1], ""));
+
+			if(token[1] - token[0] > 1 || (expression.charAt(token[0]) != 'I' && isNumeral(expression.charAt(token[0]))))
+				candidates.add(replace(expression, token[0], token[1], "I"));
+		}
+
+		return candidates;
+	}
+
+	/**
+	 * Splits the expression into tokens (numbers, operators, parenthesis and other characters), ignoring the spaces.
+	 * Every token is returned as its start and end position.
+	 */
+	private static List<int[]> tokenize(String expression) {
+		List<int[]> tokens = new ArrayList<int[]>();
+
+		for(int i = 0; i < expression.length(); i++){
+			if(expression.charAt(i) == ' ')
+				continue;
+
+			int start = i;
+			if(isNumeral(expression.charAt(i))){
+				while(i + 1 < expression.length() && isNumeral(expression.charAt(i + 1)))
+					i++;
+			}
+			tokens.add(new int[] { start, i + 1 });
+		}
+
+		return tokens;
+	}
+
+	private static int findClosingParenthesis(String expression, int openPos) {
+		int countDown = 0;
+
+		for(int i = openPos; i < expression.length(); i++){
+			if(expression.charAt(i) == '(')
+				countDown++;
+			else if(expression.charAt(i) == ')')
+				countDown--;
+
+			if(countDown == 0)
+				return i;
+		}
+
+		return -1;
+	}
+
+	private static boolean isNumeral(char character) {
+		return "IVXLCDM".indexOf(character) != -1;
+	}
+
+	private static String replace(String expression, int start, int end, String replacement) {
+		return expression.substring(0, start) + replacement + expression.substring(end);
+	}
+}